@@ -16,6 +16,12 @@ public class AVL {
   private Node root; // Stores the root node of the tree
   private Node trail1; // Tracks the node immediate behind the current node
   private Node trail2; // Tracks the node 2 behind the current node
+  private int nodeCount; // The number of nodes in the tree
+  private Node[] finger; // The path from the root to the last node added by fingerInsert
+  private int fingerDepth; // The number of nodes on the finger path, 0 if there is no finger
+  private int[] fingerLow; // For each node on the finger path, where the path last turned right above it, or -1
+  private int[] fingerHigh; // For each node on the finger path, where the path last turned left above it, or -1
+  private long fingerSteps; // The number of nodes fingerInsert has stepped through while searching
 
   /**
   *  Constructor for the AVL class.
@@ -25,6 +31,25 @@ public class AVL {
     root = null;
     trail1 = null;
     trail2 = null;
+    nodeCount = 0;
+    finger = new Node[64]; // An AVL tree of 2^31 values is at most 45 levels tall
+    fingerDepth = 0;
+    fingerLow = new int[64];
+    fingerHigh = new int[64];
+    fingerSteps = 0;
+  }
+
+
+  /**
+  *  Constructor for the AVL class.
+  *  Builds a perfectly balanced tree from sorted values in linear time.
+  *
+  *  @param values The values to store, in increasing order with no duplicates
+  */
+  public AVL(int[] values) {
+    this();
+    root = buildNode(values, 0, values.length - 1);
+    nodeCount = values.length;
   }
 
 
@@ -62,6 +87,141 @@ public class AVL {
   */
   public void insert(int value) {
     root = addNode(root, value); // Call addNode to place the value
+    fingerDepth = 0; // Rotations may have moved the nodes on the finger path
+  }
+
+
+  /**
+  *  Inserts a value into the AVL if the value is not already in it.
+  *  Instead of starting at the root, the search climbs from the last
+  *  value added by this method until it reaches a subtree that must
+  *  hold the new value, then descends from there. When values arrive
+  *  nearly sorted this takes O(log d) steps, where d is the distance
+  *  from the previous value, rather than O(log n).
+  *
+  *  @param value The value that is to be added to the tree
+  */
+  public void fingerInsert(int value) {
+    if (root == null) {
+      root = new Node(value);
+      nodeCount++;
+    }
+
+    // Without a finger start from the root
+    if (fingerDepth == 0) {
+      finger[0] = root;
+      fingerLow[0] = -1;
+      fingerHigh[0] = -1;
+      fingerDepth = 1;
+    }
+
+    // Climb to the nearest node on the path whose subtree range holds the value. A subtree is bounded
+    // by the nodes where the path last turned left and right above it, and a missing bound is open.
+    // Every node between a turn and the finger shares that bound, so the climb jumps from turn to turn.
+    int depth = fingerDepth;
+    while (true) {
+      int low = fingerLow[depth - 1];
+      int high = fingerHigh[depth - 1];
+
+      if (high >= 0 && finger[high].value <= value) {
+        depth = high + 1;
+      } else if (low >= 0 && finger[low].value >= value) {
+        depth = low + 1;
+      } else {
+        break;
+      }
+      fingerSteps++;
+    }
+
+    // Descend from there, recording the path, until the value is found or a free spot is reached
+    Node node = finger[depth - 1];
+    while (node.value != value) {
+      Node next = node.value > value ? node.left : node.right;
+      fingerSteps++;
+
+      if (next == null) {
+        next = new Node(value);
+        if (node.value > value) {
+          node.left = next;
+        } else {
+          node.right = next;
+        }
+        nodeCount++;
+        pushFinger(depth++, next);
+        fingerDepth = rebalancePath(depth, value);
+        return;
+      }
+
+      pushFinger(depth++, next);
+      node = next;
+    }
+    fingerDepth = depth;
+  }
+
+
+  // Puts a child of the last node on the finger path at the given depth and records the turn taken to reach it
+  private void pushFinger(int depth, Node node) {
+    finger[depth] = node;
+
+    if (finger[depth - 1].left == node) {
+      fingerLow[depth] = fingerLow[depth - 1];
+      fingerHigh[depth] = depth - 1;
+    } else {
+      fingerLow[depth] = depth - 1;
+      fingerHigh[depth] = fingerHigh[depth - 1];
+    }
+  }
+
+
+  /**
+  *  Walks back up the finger path after a value was added at the end of it,
+  *  updating heights and rotating the first unbalanced node. It stops early
+  *  once a height stays the same, since nothing above it can change.
+  *
+  *  @param depth The number of nodes on the finger path
+  *  @param value The value that was added
+  *  @return The number of nodes on the finger path afterwards
+  */
+  private int rebalancePath(int depth, int value) {
+    for (int i = depth - 2; i >= 0; i--) {
+      Node node = finger[i];
+      int oldHeight = node.height;
+      updateHeight(node);
+
+      int balance = getNodeHeight(node.left) - getNodeHeight(node.right);
+      if (balance > 1 || balance < -1) {
+        // The value is on the heavy side, so it picks which of the four rotations is needed
+        Node top;
+        if (balance > 1) {
+          top = value < node.left.value ? CBARotation(node) : CABRotation(node);
+        } else {
+          top = value > node.right.value ? ABCRotation(node) : ACBRotation(node);
+        }
+
+        if (i == 0) {
+          root = top;
+        } else if (finger[i - 1].left == node) {
+          finger[i - 1].left = top;
+        } else {
+          finger[i - 1].right = top;
+        }
+
+        // The rotation rearranged the path below this point, so find the new value again.
+        // The new top covers the same range as the old one, so its turns stay the same.
+        // A rotation restores the old height of the subtree, so nothing above needs updating
+        finger[i] = top;
+        depth = i + 1;
+        while (finger[depth - 1].value != value) {
+          pushFinger(depth, finger[depth - 1].value > value ? finger[depth - 1].left : finger[depth - 1].right);
+          depth++;
+          fingerSteps++;
+        }
+        return depth;
+      }
+
+      if (node.height == oldHeight) break;
+    }
+    return depth;
   }
 
 
@@ -78,6 +238,7 @@ public class AVL {
   private Node addNode(Node node, int value) {
     if (node == null) { // If there is no node at this location, create one with this value
       node = new Node(value);
+      nodeCount++;
 
       // Update the trails
       trail2 = null;
@@ -240,6 +401,62 @@ public class AVL {
   }
 
 
+  /**
+  *  Checks whether a value is in the tree
+  *
+  *  @param value The value to look for
+  *  @return True if the value is in the tree
+  */
+  public boolean contains(int value) {
+    Node node = root;
+
+    while (node != null) {
+      if (node.value > value) { // If the value is smaller than the node, look on the left
+        node = node.left;
+      } else if (node.value < value) { // If the value is larger than the node, look on the right
+        node = node.right;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+  *  Returns the values of the entire tree from smallest to largest
+  *
+  *  @return The values in increasing order
+  */
+  public int[] toSortedArray() {
+    int[] values = new int[nodeCount];
+    addValues(root, values, 0);
+    return values;
+  }
+
+
+  // Copies the values below a node into the array using in-order traversal. Returns the next free index
+  private int addValues(Node node, int[] values, int index) {
+    if (node == null) return index;
+
+    index = addValues(node.left, values, index);
+    values[index++] = node.value;
+    return addValues(node.right, values, index);
+  }
+
+
+  // Builds a balanced subtree from the sorted values between low and high, using the middle value as the root
+  private Node buildNode(int[] values, int low, int high) {
+    if (low > high) return null;
+
+    int mid = (low + high) >>> 1;
+    Node node = new Node(values[mid]);
+    node.left = buildNode(values, low, mid - 1);
+    node.right = buildNode(values, mid + 1, high);
+    return updateHeight(node);
+  }
+
+
   /**
   *  Prints the values of the entire tree
   */
@@ -283,6 +500,17 @@ public class AVL {
     if (node.right != null) printNode(node.right);
   }
 
+  /**
+  *  Returns the memory footprint of the tree's nodes,
+  *  worked out from the fields of the Node class
+  *
+  *  @return The footprint of the tree
+  */
+  public Footprint getFootprint() {
+    return new Footprint("AVL", nodeCount, Node.class);
+  }
+
+
   /**
   *  Returns the height of the root node
   *
@@ -290,6 +518,12 @@ public class AVL {
   */
   public int getTreeHeight() {return getNodeHeight(root);}
 
+  // Returns the number of nodes in the tree
+  public int getNodeCount() {return nodeCount;}
+
+  // Returns the number of nodes fingerInsert has stepped through while searching
+  public long getFingerSteps() {return fingerSteps;}
+
   // Returns the height of a node. If the node is null, returns 0
   private int getNodeHeight(Node node) {return node == null ? 0 : node.height;}
 
@@ -0,0 +1,129 @@
+/*
+*  An ordered set that switches between AVL and Red-Black balancing.
+*/
+
+/**
+*  The Adaptive class.
+*  Stores its values in either an AVL or a Red-Black tree.
+*  AVL trees are shorter so they suit lookups, while Red-Black trees
+*  do less rebalancing so they suit inserts. One operation in every
+*  64 is sampled, and once enough samples are collected the read/write
+*  mix decides which tree the values should live in.
+*/
+
+public class Adaptive {
+
+  private static final int SAMPLE_MASK = 63; // Sample one operation in every 64
+  private static final int WINDOW = 256; // The number of samples to collect before deciding
+  private static final double READ_HEAVY = 0.8; // Switch to AVL when at least this fraction are reads
+  private static final double WRITE_HEAVY = 0.5; // Switch to Red-Black when at most this fraction are reads
+
+  private AVL avl; // Holds the values while reads dominate, otherwise null
+  private RedBlack redBlack; // Holds the values while writes dominate, otherwise null
+  private int opCount; // Counts every operation, used to pick which ones to sample
+  private int sampledReads; // Sampled lookups in the current window
+  private int sampledWrites; // Sampled inserts in the current window
+  private long opsSinceSwitch; // Operations since the last switch
+  private int switchCount; // The number of times the tree has been switched
+
+
+  /**
+  *  Constructor for the Adaptive class.
+  *  Starts with a Red-Black tree since an empty set is filled by inserts.
+  */
+  public Adaptive() {
+    avl = null;
+    redBlack = new RedBlack();
+    opCount = 0;
+    sampledReads = 0;
+    sampledWrites = 0;
+    opsSinceSwitch = 0;
+    switchCount = 0;
+  }
+
+
+  /**
+  *  Inserts a value into the set if the value is not already in it
+  *
+  *  @param value The value that is to be added to the set
+  */
+  public void insert(int value) {
+    if ((++opCount & SAMPLE_MASK) == 0) sample(false);
+
+    if (avl != null) {
+      avl.insert(value);
+    } else {
+      redBlack.insert(value);
+    }
+  }
+
+
+  /**
+  *  Checks whether a value is in the set
+  *
+  *  @param value The value to look for
+  *  @return True if the value is in the set
+  */
+  public boolean contains(int value) {
+    if ((++opCount & SAMPLE_MASK) == 0) sample(true);
+
+    return avl != null ? avl.contains(value) : redBlack.contains(value);
+  }
+
+
+  /**
+  *  Records a sampled operation. When the window is full the read
+  *  fraction is checked against the thresholds and the tree is switched
+  *  if the mix has crossed one. The gap between the two thresholds stops
+  *  a mix near the boundary from switching back and forth.
+  *
+  *  @param read True if the sampled operation was a lookup
+  */
+  private void sample(boolean read) {
+    if (read) {
+      sampledReads++;
+    } else {
+      sampledWrites++;
+    }
+    opsSinceSwitch += SAMPLE_MASK + 1;
+
+    if (sampledReads + sampledWrites < WINDOW) return;
+
+    double readFraction = Double.valueOf(sampledReads) / WINDOW;
+    sampledReads = 0;
+    sampledWrites = 0;
+
+    // A rebuild costs one step per value, so only switch once at least that many
+    // operations have passed since the last one. This keeps the cost per operation constant.
+    if (opsSinceSwitch < getNodeCount()) return;
+
+    if (avl == null && readFraction >= READ_HEAVY) {
+      avl = new AVL(redBlack.toSortedArray());
+      redBlack = null;
+      opsSinceSwitch = 0;
+      switchCount++;
+    } else if (redBlack == null && readFraction <= WRITE_HEAVY) {
+      redBlack = new RedBlack(avl.toSortedArray());
+      avl = null;
+      opsSinceSwitch = 0;
+      switchCount++;
+    }
+  }
+
+
+  /**
+  *  Returns the height of the tree currently holding the values
+  *
+  *  @return The height of the root node
+  */
+  public int getTreeHeight() {return avl != null ? avl.getTreeHeight() : redBlack.getTreeHeight();}
+
+  // Returns the number of values in the set
+  public int getNodeCount() {return avl != null ? avl.getNodeCount() : redBlack.getNodeCount();}
+
+  // Returns true if the values are currently in an AVL tree
+  public boolean isAVL() {return avl != null;}
+
+  // Returns the number of times the values have been moved to the other tree
+  public int getSwitchCount() {return switchCount;}
+}
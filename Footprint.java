@@ -0,0 +1,133 @@
+/*
+*  Estimates the memory used by a tree from the layout of its nodes.
+*/
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+*  The Footprint class.
+*  Every node of a tree has the same shape, so the footprint of the
+*  whole tree is the size of one node times the number of nodes.
+*  The size of one node is worked out the same way HotSpot lays it out:
+*  an object header, the fields, then padding up to the object alignment.
+*  The fields are read from the node class itself, so hidden fields the
+*  compiler adds (such as the reference an inner class keeps to its
+*  enclosing object) are counted only when they are really there.
+*/
+
+public class Footprint {
+
+  private static final int ALIGNMENT = 8; // Objects start on 8 byte boundaries
+  private static final int HEADER_BYTES; // Mark word plus class pointer, or one word with compact headers
+  private static final int REFERENCE_BYTES; // Size of a reference field
+
+  // Header and reference sizes depend on whether the JVM compresses pointers and headers
+  static {
+    boolean compressedOops = true;
+    boolean compressedClassPointers = true;
+    boolean compactHeaders = false;
+
+    try {
+      HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+      compressedOops = Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+      compressedClassPointers = Boolean.parseBoolean(bean.getVMOption("UseCompressedClassPointers").getValue());
+
+      // Only newer JVMs have this option, older ones throw for an unknown name
+      try {
+        compactHeaders = Boolean.parseBoolean(bean.getVMOption("UseCompactObjectHeaders").getValue());
+      } catch (IllegalArgumentException e) {
+        compactHeaders = false;
+      }
+    } catch (RuntimeException e) {
+      // Not a HotSpot JVM, assume the default layout for heaps under 32 GB
+    }
+
+    if (compactHeaders) {
+      HEADER_BYTES = 8;
+    } else {
+      HEADER_BYTES = compressedClassPointers ? 12 : 16;
+    }
+    REFERENCE_BYTES = compressedOops ? 4 : 8;
+  }
+
+  private String name; // The name of the tree being measured
+  private long nodeCount; // The number of nodes in the tree
+  private int fieldBytes; // The bytes used by the fields of one node
+  private int nodeBytes; // The bytes used by one node after padding
+
+
+  /**
+  *  Constructor for the Footprint class.
+  *  Works out the size of one node from the instance fields its class declares.
+  *
+  *  @param name The name of the tree being measured
+  *  @param nodeCount The number of nodes in the tree
+  *  @param nodeClass The class of the tree's nodes
+  */
+  public Footprint(String name, long nodeCount, Class<?> nodeClass) {
+    this.name = name;
+    this.nodeCount = nodeCount;
+    fieldBytes = 0;
+
+    for (Field field : nodeClass.getDeclaredFields()) {
+      if (!Modifier.isStatic(field.getModifiers())) fieldBytes += getFieldBytes(field.getType());
+    }
+    nodeBytes = align(HEADER_BYTES + fieldBytes);
+  }
+
+
+  // Returns the bytes used by a field of the given type
+  private static int getFieldBytes(Class<?> type) {
+    if (type == long.class || type == double.class) return 8;
+    if (type == int.class || type == float.class) return 4;
+    if (type == char.class || type == short.class) return 2;
+    if (type == byte.class || type == boolean.class) return 1;
+    return REFERENCE_BYTES;
+  }
+
+
+  // Rounds a size up to the next multiple of the object alignment
+  private static int align(int bytes) {
+    return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  }
+
+
+  /**
+  *  Prints the total bytes, bytes per key, node count and the bytes
+  *  that go to object headers and padding rather than to the fields
+  */
+  public void print() {
+    System.out.println("\n=== " + name + " Footprint ===");
+    System.out.println("Nodes = " + nodeCount + " , bytes per node = " + nodeBytes);
+    System.out.println("Total bytes = " + getTotalBytes() + " , bytes per key = " + getBytesPerKey());
+    System.out.println("Header bytes = " + getHeaderBytes() + " , padding bytes = " + getPaddingBytes());
+  }
+
+
+  /**
+  *  Returns the bytes used by all the nodes in the tree
+  *
+  *  @return The total bytes used by the tree
+  */
+  public long getTotalBytes() {return nodeCount * nodeBytes;}
+
+  /**
+  *  Returns the bytes used for each key stored in the tree.
+  *  Each node holds one key so this is the size of a node.
+  *
+  *  @return The bytes per key, or 0 if the tree is empty
+  */
+  public double getBytesPerKey() {return nodeCount == 0 ? 0 : Double.valueOf(getTotalBytes()) / nodeCount;}
+
+  // Returns the bytes used by object headers
+  public long getHeaderBytes() {return nodeCount * HEADER_BYTES;}
+
+  // Returns the bytes lost to alignment padding
+  public long getPaddingBytes() {return nodeCount * (nodeBytes - HEADER_BYTES - fieldBytes);}
+
+  // Returns the number of nodes in the tree
+  public long getNodeCount() {return nodeCount;}
+}
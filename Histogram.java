@@ -0,0 +1,106 @@
+/*
+*  A latency histogram with log sized buckets.
+*/
+
+import java.util.Arrays;
+
+/**
+*  The Histogram class.
+*  Counts recorded values in buckets laid out the same way as HdrHistogram.
+*  Values below 128 get a bucket each. Above that every power of two is split
+*  into 64 buckets, so a value is always reported within 1/64 of what was
+*  recorded. The counts live in one fixed array, so recording never allocates.
+*/
+
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 7; // Bits of precision kept for each value
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // Values below this get a bucket each
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2; // Buckets for each power of two above that
+
+  private long[] counts; // The number of values recorded in each bucket
+  private long totalCount; // The number of values recorded
+  private long max; // The largest value recorded
+
+
+  /**
+  *  Constructor for the Histogram class.
+  *  Creates enough buckets for any non-negative long.
+  */
+  public Histogram() {
+    counts = new long[getIndex(Long.MAX_VALUE) + 1];
+    totalCount = 0;
+    max = 0;
+  }
+
+
+  /**
+  *  Records a value. Negative values are counted as 0.
+  *
+  *  @param value The value to record, e.g. a latency in nanoseconds
+  */
+  public void recordValue(long value) {
+    if (value < 0) value = 0;
+
+    counts[getIndex(value)]++;
+    totalCount++;
+    if (value > max) max = value;
+  }
+
+
+  // Returns the bucket a value is counted in. The top 7 bits of the value pick the bucket within its power of two
+  private static int getIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) return (int) value;
+
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+  }
+
+
+  // Returns the largest value that is counted in a bucket
+  private static long getHighestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) return index;
+
+    int shift = index / SUB_BUCKET_HALF - 1;
+    long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+
+  /**
+  *  Returns the value that the given percentage of recorded values are at or below.
+  *  The result is the top of the bucket it falls in, but never more than the largest value recorded.
+  *
+  *  @param percentile The percentage to look up, from 0 to 100
+  *  @return The value at that percentile, or 0 if nothing has been recorded
+  */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) return 0;
+
+    long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+    long runningCount = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      runningCount += counts[i];
+      if (runningCount >= countAtPercentile) return Math.min(getHighestValue(i), max);
+    }
+    return max;
+  }
+
+
+  /**
+  *  Clears every count so the histogram can be reused
+  */
+  public void reset() {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    max = 0;
+  }
+
+
+  // Returns the largest value recorded
+  public long getMax() {return max;}
+
+  // Returns the number of values recorded
+  public long getTotalCount() {return totalCount;}
+}
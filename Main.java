@@ -19,36 +19,53 @@ public class Main {
   private int arr[]; // Holds the generated values
   private RedBlack redBlack; // The binary search tree object
   private AVL avl; // The AVL tree object
-  private int trialNum; // The number of values to add for in-order trees
+  private int trialNum; // The number of trials to run
 
 
   /**
   *  Constructor for the Lab3 class.
-  *  Generates random integers and adds them to the AVL.
+  *  Generates random integers and adds them to both trees.
+  *  Each trial prints the height ratio and the time taken to build each
+  *  tree side by side. The memory breakdown is worked out from the node
+  *  layout, so it is printed once at the end rather than for every trial.
+  *
+  *  @param randomNum The number of random values to add to each tree
+  *  @param trialNum The number of trials to run
   */
-  public Main() {
+  public Main(int randomNum, int trialNum) {
+
+    this.randomNum = randomNum;
+    this.trialNum = trialNum;
+    System.out.println("Height ratio\tRed-Black ms\tAVL ms");
 
-    trialNum = 100; // Run for 100 trials for random arrays of size 50 000
     for (int j = 0; j < trialNum; j++) {
-      randomNum = 50000; // Size of the random arrays
       arr = randomArray(randomNum); // Generate the random values
       redBlack = new RedBlack();
       avl = new AVL(); // Create the AVL
 
-      // Print the values and add them to the tree
+      // Add the values to the tree and time how long it takes
+      long start = System.nanoTime();
       for (int i = 0; i < randomNum; i++) {
         //System.out.println("\nAdding to Red-Black: " + arr[i]);
         redBlack.insert(arr[i]);
       }
+      long redBlackTime = System.nanoTime() - start;
 
-      // Print the values and add them to the tree
+      // Add the values to the tree and time how long it takes
+      start = System.nanoTime();
       for (int i = 0; i < randomNum; i++) {
         //System.out.println("\nAdding to AVL: " + arr[i]);
         avl.insert(arr[i]);
       }
+      long avlTime = System.nanoTime() - start;
 
-      System.out.println("" + getRatio());
+      System.out.println("" + getRatio() + "\t" + redBlackTime / 1000000 + "\t" + avlTime / 1000000);
     }
+
+    // Print the layout breakdown for the trees from the last trial
+    redBlack.getFootprint().print();
+    avl.getFootprint().print();
+    System.out.println("\nMemory ratio (Red-Black / AVL, from the node layout) = " + getMemoryRatio());
      //redBlack.printTree();
     // System.out.println("" + redBlack.getTreeHeight());
      //avl.printTree();
@@ -80,6 +97,37 @@ public class Main {
     return myArray;
   }
 
+  /**
+  *  Generates the values 0 to arrayLength - 1 in nearly sorted order.
+  *  The values are split into blocks of k + 1 and each block is shuffled,
+  *  so every value is at most k places from its sorted position.
+  *
+  *  @param arrayLength The length of the generated array
+  *  @param k The largest distance a value can be from its sorted position
+  */
+  public static int[] nearlySortedArray(int arrayLength, int k) {
+    int[] myArray = new int[arrayLength];
+    Random rand = new Random();
+
+    for (int i = 0; i < arrayLength; i++) {
+      myArray[i] = i;
+    }
+
+    // Shuffle each block by swapping every position with a random one at or after it in the same block
+    for (int blockStart = 0; blockStart < arrayLength; blockStart += k + 1) {
+      int blockEnd = Math.min(arrayLength, blockStart + k + 1);
+
+      for (int i = blockStart; i < blockEnd - 1; i++) {
+        int j = i + rand.nextInt(blockEnd - i);
+        int temp = myArray[i];
+        myArray[i] = myArray[j];
+        myArray[j] = temp;
+      }
+    }
+
+    return myArray;
+  }
+
   /**
   *  Casts the heights of two trees into doubles and return the ratio
   *
@@ -89,12 +137,283 @@ public class Main {
     return Double.valueOf(redBlack.getTreeHeight()) / Double.valueOf(avl.getTreeHeight());
   }
 
+  /**
+  *  Casts the footprints of two trees into doubles and return the ratio.
+  *  The footprints are worked out from the node layout, not measured.
+  *
+  *  @return The ratio of the memory used by two trees
+  */
+  private double getMemoryRatio() {
+    return Double.valueOf(redBlack.getFootprint().getTotalBytes()) / Double.valueOf(avl.getFootprint().getTotalBytes());
+  }
+
+
+  /**
+  *  Compares the adaptive set against both fixed trees on a workload
+  *  whose read/write mix changes. Phases alternate between mostly
+  *  inserts and mostly lookups, and every structure runs the same
+  *  operations. Each round prints the time taken by each structure.
+  *
+  *  @param phaseLength The number of operations in each phase
+  *  @param phaseNum The number of phases in each round
+  *  @param roundNum The number of rounds to run
+  */
+  public static void adaptiveBenchmark(int phaseLength, int phaseNum, int roundNum) {
+    int opNum = phaseLength * phaseNum;
+    Random rand = new Random();
+    System.out.println("Red-Black ms\tAVL ms\tAdaptive ms\tSwitches");
+
+    for (int j = 0; j < roundNum; j++) {
+      int[] keys = randomArray(opNum); // The value each operation inserts or looks up
+      boolean[] reads = new boolean[opNum]; // Whether each operation is a lookup
+
+      // Even phases are 90% inserts and odd phases are 95% lookups
+      for (int i = 0; i < opNum; i++) {
+        double readFraction = (i / phaseLength) % 2 == 0 ? 0.1 : 0.95;
+        reads[i] = rand.nextDouble() < readFraction;
+      }
+
+      RedBlack redBlack = new RedBlack();
+      int redBlackHits = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < opNum; i++) {
+        if (!reads[i]) {
+          redBlack.insert(keys[i]);
+        } else if (redBlack.contains(keys[i])) {
+          redBlackHits++;
+        }
+      }
+      long redBlackTime = System.nanoTime() - start;
+
+      AVL avl = new AVL();
+      int avlHits = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < opNum; i++) {
+        if (!reads[i]) {
+          avl.insert(keys[i]);
+        } else if (avl.contains(keys[i])) {
+          avlHits++;
+        }
+      }
+      long avlTime = System.nanoTime() - start;
+
+      Adaptive adaptive = new Adaptive();
+      int adaptiveHits = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < opNum; i++) {
+        if (!reads[i]) {
+          adaptive.insert(keys[i]);
+        } else if (adaptive.contains(keys[i])) {
+          adaptiveHits++;
+        }
+      }
+      long adaptiveTime = System.nanoTime() - start;
+
+      // All three answer the same lookups, so a mismatch means one of them is wrong
+      if (redBlackHits != avlHits || avlHits != adaptiveHits) {
+        throw new IllegalStateException("Lookup results differ: " + redBlackHits + ", " + avlHits + ", " + adaptiveHits);
+      }
+
+      System.out.println("" + redBlackTime / 1000000 + "\t" + avlTime / 1000000 + "\t" + adaptiveTime / 1000000 + "\t" + adaptive.getSwitchCount());
+    }
+  }
+
 
   /**
-  *  Main method to start the program
-  *  @param args Unused
+  *  Compares insert against fingerInsert on sorted and nearly sorted
+  *  streams. Each row is for one stream, where every value is at most
+  *  k places from its sorted position (k = 0 is fully sorted), and also
+  *  shows how many nodes each fingerInsert stepped through on average.
+  *  First it checks that the steps per insert on sorted input stay the
+  *  same as the number of values grows.
+  *
+  *  @param valueNum The number of values in each stream
+  *  @param roundNum The number of times to run every stream
+  */
+  public static void fingerBenchmark(int valueNum, int roundNum) {
+    int[] displacements = {0, 4, 64, 1024};
+
+    // On sorted input every value goes just past the previous one, so the steps should not grow with the size
+    System.out.println("Sorted values\tRed-Black finger steps\tAVL finger steps");
+    double firstRedBlackSteps = -1; // The steps per insert at the smallest size
+    double firstAvlSteps = -1;
+    for (int n = Math.max(1, valueNum / 64); n <= valueNum; n *= 8) {
+      RedBlack redBlack = new RedBlack();
+      AVL avl = new AVL();
+      for (int i = 0; i < n; i++) {
+        redBlack.fingerInsert(i);
+        avl.fingerInsert(i);
+      }
+
+      double redBlackSteps = Double.valueOf(redBlack.getFingerSteps()) / n;
+      double avlSteps = Double.valueOf(avl.getFingerSteps()) / n;
+      if (firstRedBlackSteps < 0) {
+        firstRedBlackSteps = redBlackSteps;
+        firstAvlSteps = avlSteps;
+      } else if (redBlackSteps > firstRedBlackSteps + 0.5 || avlSteps > firstAvlSteps + 0.5) {
+        throw new IllegalStateException("fingerInsert steps grew with the size on sorted input: " + redBlackSteps + ", " + avlSteps);
+      }
+      System.out.println("" + n + "\t" + redBlackSteps + "\t" + avlSteps);
+    }
+
+    System.out.println("\nk\tRed-Black ms\tRed-Black finger ms\tAVL ms\tAVL finger ms\tRed-Black finger steps\tAVL finger steps");
+    for (int j = 0; j < roundNum; j++) {
+      for (int k : displacements) {
+        int[] values = nearlySortedArray(valueNum, k);
+
+        RedBlack redBlack = new RedBlack();
+        long start = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) redBlack.insert(values[i]);
+        long redBlackTime = System.nanoTime() - start;
+
+        RedBlack redBlackFinger = new RedBlack();
+        start = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) redBlackFinger.fingerInsert(values[i]);
+        long redBlackFingerTime = System.nanoTime() - start;
+
+        AVL avl = new AVL();
+        start = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) avl.insert(values[i]);
+        long avlTime = System.nanoTime() - start;
+
+        AVL avlFinger = new AVL();
+        start = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) avlFinger.fingerInsert(values[i]);
+        long avlFingerTime = System.nanoTime() - start;
+
+        System.out.println("" + k + "\t" + redBlackTime / 1000000 + "\t" + redBlackFingerTime / 1000000
+                           + "\t" + avlTime / 1000000 + "\t" + avlFingerTime / 1000000
+                           + "\t" + Double.valueOf(redBlackFinger.getFingerSteps()) / valueNum
+                           + "\t" + Double.valueOf(avlFinger.getFingerSteps()) / valueNum);
+      }
+    }
+  }
+
+
+  /**
+  *  Times every insert and lookup on both trees and prints the latency
+  *  percentiles in nanoseconds for each tree, workload and operation.
+  *  With a fixed rate each operation has a scheduled start time and its
+  *  latency is measured from that time rather than from when it actually
+  *  started. A slow operation then also counts against the ones it held
+  *  up, which corrects for coordinated omission.
+  *
+  *  @param valueNum The number of values to insert and look up
+  *  @param rate The operations per second to run at, or 0 to run as fast as possible
+  *  @param roundNum The number of times to run every workload
+  */
+  public static void latencyBenchmark(int valueNum, int rate, int roundNum) {
+    String[] workloads = {"random", "sorted"};
+    long interval = rate > 0 ? 1000000000L / rate : 0; // Nanoseconds between scheduled operations
+    Histogram inserts = new Histogram();
+    Histogram lookups = new Histogram();
+    System.out.println("Tree\tWorkload\tOperation\tp50\tp99\tp99.9\tmax");
+
+    for (int j = 0; j < roundNum; j++) {
+      for (String workload : workloads) {
+        int[] values = workload.equals("random") ? randomArray(valueNum) : nearlySortedArray(valueNum, 0);
+        int[] keys = randomArray(valueNum); // The values to look up, about half of which are in the tree
+
+        RedBlack redBlack = new RedBlack();
+        inserts.reset();
+        lookups.reset();
+        long next = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) {
+          long start = interval > 0 ? waitUntil(next) : System.nanoTime();
+          next += interval;
+          redBlack.insert(values[i]);
+          inserts.recordValue(System.nanoTime() - start);
+        }
+        next = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) {
+          long start = interval > 0 ? waitUntil(next) : System.nanoTime();
+          next += interval;
+          redBlack.contains(keys[i]);
+          lookups.recordValue(System.nanoTime() - start);
+        }
+        printLatency("Red-Black", workload, "insert", inserts);
+        printLatency("Red-Black", workload, "lookup", lookups);
+
+        AVL avl = new AVL();
+        inserts.reset();
+        lookups.reset();
+        next = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) {
+          long start = interval > 0 ? waitUntil(next) : System.nanoTime();
+          next += interval;
+          avl.insert(values[i]);
+          inserts.recordValue(System.nanoTime() - start);
+        }
+        next = System.nanoTime();
+        for (int i = 0; i < valueNum; i++) {
+          long start = interval > 0 ? waitUntil(next) : System.nanoTime();
+          next += interval;
+          avl.contains(keys[i]);
+          lookups.recordValue(System.nanoTime() - start);
+        }
+        printLatency("AVL", workload, "insert", inserts);
+        printLatency("AVL", workload, "lookup", lookups);
+      }
+    }
+  }
+
+
+  // Spins until the scheduled start time of an operation and returns that time
+  private static long waitUntil(long time) {
+    while (System.nanoTime() < time) {
+      Thread.onSpinWait();
+    }
+    return time;
+  }
+
+
+  // Prints one row of latency percentiles
+  private static void printLatency(String tree, String workload, String operation, Histogram histogram) {
+    System.out.println(tree + "\t" + workload + "\t" + operation + "\t" + histogram.getValueAtPercentile(50)
+                       + "\t" + histogram.getValueAtPercentile(99) + "\t" + histogram.getValueAtPercentile(99.9)
+                       + "\t" + histogram.getMax());
+  }
+
+
+  /**
+  *  Main method to start the program.
+  *  Sizes up to 100 000 000 keys need a large heap (e.g. -Xmx16g).
+  *
+  *  Run with "adaptive" as the first argument to benchmark the adaptive set instead,
+  *  or with "finger" to benchmark fingerInsert, or with "latency" to print latency percentiles.
+  *
+  *  @param args The number of keys per trial (default 50 000) and the number of trials (default 100),
+  *              or "adaptive" followed by the phase length (default 1 000 000), phases (default 8) and rounds (default 5),
+  *              or "finger" followed by the number of values (default 1 000 000) and rounds (default 5),
+  *              or "latency" followed by the number of values (default 1 000 000), operations per second
+  *              (default 0, as fast as possible) and rounds (default 3)
   */
   public static void main(String[] args) {
-    new Main();
+    if (args.length > 0 && args[0].equals("adaptive")) {
+      int phaseLength = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+      int phaseNum = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+      int roundNum = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+      adaptiveBenchmark(phaseLength, phaseNum, roundNum);
+      return;
+    }
+
+    if (args.length > 0 && args[0].equals("finger")) {
+      int valueNum = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+      int roundNum = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+      fingerBenchmark(valueNum, roundNum);
+      return;
+    }
+
+    if (args.length > 0 && args[0].equals("latency")) {
+      int valueNum = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+      int rate = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+      int roundNum = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+      latencyBenchmark(valueNum, rate, roundNum);
+      return;
+    }
+
+    int randomNum = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    int trialNum = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    new Main(randomNum, trialNum);
   }
 }
@@ -14,6 +14,11 @@ public class RedBlack {
   private boolean cba;
   private boolean acb;
   private boolean cab;
+  private int nodeCount; // The number of nodes in the tree
+  private Node finger; // The last node added to the tree
+  private Node min; // The node with the smallest value
+  private Node max; // The node with the largest value
+  private long fingerSteps; // The number of nodes fingerInsert has stepped through while searching
 
 
   /**
@@ -28,6 +33,34 @@ public class RedBlack {
     cba = false;
     acb = false;
     cab = false;
+    nodeCount = 0;
+    finger = null;
+    min = null;
+    max = null;
+    fingerSteps = 0;
+  }
+
+
+  /**
+  *  Constructor for the RedBlack class.
+  *  Builds a perfectly balanced tree from sorted values in linear time.
+  *  Every level is black except a partly filled bottom level, which is red
+  *  so that every path has the same number of black nodes.
+  *
+  *  @param values The values to store, in increasing order with no duplicates
+  */
+  public RedBlack(int[] values) {
+    this();
+    int bottomDepth = 31 - Integer.numberOfLeadingZeros(values.length); // Depth of the deepest level
+    root = buildNode(values, 0, values.length - 1, null, 0, bottomDepth);
+    if (root != null) root.colour = 'b';
+
+    // The smallest and largest values are at the ends of the left and right spines
+    min = root;
+    max = root;
+    while (min != null && min.left != null) min = min.left;
+    while (max != null && max.right != null) max = max.right;
+    nodeCount = values.length;
   }
 
 
@@ -85,6 +118,9 @@ public class RedBlack {
   private Node addNode(Node node, int value) {
     if (node == null) { // If there is no node at this location, create one with this value
       node = new Node(value, trail);
+      nodeCount++;
+      finger = node;
+      updateMinMax(node);
 
     } else if (node.value > value) { // If the value is smaller than the node, try it on the left
       trail = node;
@@ -178,6 +214,150 @@ public class RedBlack {
   }
 
 
+  /**
+  *  Inserts a value into the Red-Black tree if the value is not already in it.
+  *  Instead of starting at the root, the search climbs the parent links from
+  *  the last value added until it reaches a subtree that must hold the new
+  *  value, then descends from there. When values arrive nearly sorted this
+  *  takes O(log d) steps, where d is the distance from the previous value,
+  *  rather than O(log n). The tree is then repaired from the bottom up.
+  *
+  *  @param value The value that is to be added to the tree
+  */
+  public void fingerInsert(int value) {
+    if (root == null) {
+      insert(value);
+      return;
+    }
+
+    Node node = finger == null ? root : finger;
+
+    if (value > max.value) { // A value past either end goes straight below that end
+      node = max;
+    } else if (value < min.value) {
+      node = min;
+    } else if (node.value != value) {
+      // Climb to the nearest node whose subtree range holds the value. The side towards the old
+      // finger is always bounded, so only the far side needs checking: it is set by the parent
+      // of the first edge climbed from that side. A subtree with no such edge above it is open
+      // on that side, so if the root is reached the answer is the top of the last such edge.
+      boolean larger = value > node.value;
+      Node open = node; // The lowest node seen so far that may be open on the far side
+      while (node.parent != null) {
+        Node parent = node.parent;
+        fingerSteps++;
+
+        if (larger ? parent.left == node : parent.right == node) {
+          if (larger ? parent.value > value : parent.value < value) break;
+          open = parent;
+        }
+        node = parent;
+      }
+      if (node.parent == null) node = open;
+    }
+
+    // Descend from there until the value is found or a free spot is reached
+    while (node.value != value) {
+      Node next = node.value > value ? node.left : node.right;
+      fingerSteps++;
+
+      if (next == null) {
+        next = new Node(value, node);
+        if (node.value > value) {
+          node.left = next;
+        } else {
+          node.right = next;
+        }
+        nodeCount++;
+        finger = next;
+        updateMinMax(next);
+        updateHeights(node);
+        fixDoubleRed(next);
+        return;
+      }
+
+      node = next;
+    }
+    finger = node;
+  }
+
+
+  /**
+  *  Restores the red-black properties after a red node was added below a
+  *  possibly red parent. While the uncle is red the colours are swapped and
+  *  the check moves up to the grandparent. Otherwise one rotation fixes it.
+  *
+  *  @param node The red node that was added
+  */
+  private void fixDoubleRed(Node node) {
+    while (getNodeColour(node.parent) == 'r') {
+      Node parent = node.parent;
+      Node grandparent = parent.parent; // A red node is never the root so the grandparent exists
+      Node uncle = grandparent.left == parent ? grandparent.right : grandparent.left;
+
+      // If the uncle is red then re-colour the nodes and check the grandparent next
+      if (getNodeColour(uncle) == 'r') {
+        parent.colour = 'b';
+        uncle.colour = 'b';
+        grandparent.colour = 'r';
+        node = grandparent;
+        continue;
+      }
+
+      // If the uncle is black then the middle of the three nodes becomes a black subtree root
+      Node greatGrandparent = grandparent.parent;
+      Node top;
+      grandparent.colour = 'r';
+      if (grandparent.left == parent) {
+        if (parent.left == node) {
+          parent.colour = 'b';
+          top = CBARotation(grandparent);
+        } else {
+          node.colour = 'b';
+          top = CABRotation(grandparent);
+        }
+      } else {
+        if (parent.right == node) {
+          parent.colour = 'b';
+          top = ABCRotation(grandparent);
+        } else {
+          node.colour = 'b';
+          top = ACBRotation(grandparent);
+        }
+      }
+
+      if (greatGrandparent == null) {
+        root = top;
+      } else if (greatGrandparent.left == grandparent) {
+        greatGrandparent.left = top;
+      } else {
+        greatGrandparent.right = top;
+      }
+      updateHeights(greatGrandparent);
+      break;
+    }
+    root.colour = 'b';
+  }
+
+
+  // Records a newly added node as the smallest or largest if it is
+  private void updateMinMax(Node node) {
+    if (min == null || node.value < min.value) min = node;
+    if (max == null || node.value > max.value) max = node;
+  }
+
+
+  // Updates the heights from a node up to the root, stopping once a height stays the same
+  private void updateHeights(Node node) {
+    while (node != null) {
+      int oldHeight = node.height;
+      updateHeight(node);
+      if (node.height == oldHeight) return;
+      node = node.parent;
+    }
+  }
+
+
 // Does an ABC rotation and updates the heights and parents of all 3 nodes
   private Node ABCRotation(Node node) {
 
@@ -278,6 +458,64 @@ public class RedBlack {
   }
 
 
+  /**
+  *  Checks whether a value is in the tree
+  *
+  *  @param value The value to look for
+  *  @return True if the value is in the tree
+  */
+  public boolean contains(int value) {
+    Node node = root;
+
+    while (node != null) {
+      if (node.value > value) { // If the value is smaller than the node, look on the left
+        node = node.left;
+      } else if (node.value < value) { // If the value is larger than the node, look on the right
+        node = node.right;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+  *  Returns the values of the entire tree from smallest to largest
+  *
+  *  @return The values in increasing order
+  */
+  public int[] toSortedArray() {
+    int[] values = new int[nodeCount];
+    addValues(root, values, 0);
+    return values;
+  }
+
+
+  // Copies the values below a node into the array using in-order traversal. Returns the next free index
+  private int addValues(Node node, int[] values, int index) {
+    if (node == null) return index;
+
+    index = addValues(node.left, values, index);
+    values[index++] = node.value;
+    return addValues(node.right, values, index);
+  }
+
+
+  // Builds a balanced subtree from the sorted values between low and high, using the middle value as the root.
+  // Nodes on the bottom level are red and all others are black
+  private Node buildNode(int[] values, int low, int high, Node parent, int depth, int bottomDepth) {
+    if (low > high) return null;
+
+    int mid = (low + high) >>> 1;
+    Node node = new Node(values[mid], parent);
+    node.colour = depth == bottomDepth ? 'r' : 'b';
+    node.left = buildNode(values, low, mid - 1, node, depth + 1, bottomDepth);
+    node.right = buildNode(values, mid + 1, high, node, depth + 1, bottomDepth);
+    return updateHeight(node);
+  }
+
+
   /**
   *  Prints the values of the entire tree
   */
@@ -322,6 +560,17 @@ public class RedBlack {
   }
 
 
+  /**
+  *  Returns the memory footprint of the tree's nodes,
+  *  worked out from the fields of the Node class
+  *
+  *  @return The footprint of the tree
+  */
+  public Footprint getFootprint() {
+    return new Footprint("Red-Black", nodeCount, Node.class);
+  }
+
+
   /**
   *  Returns the height of the root node
   *
@@ -329,6 +578,12 @@ public class RedBlack {
   */
   public int getTreeHeight() {return getNodeHeight(root);}
 
+  // Returns the number of nodes in the tree
+  public int getNodeCount() {return nodeCount;}
+
+  // Returns the number of nodes fingerInsert has stepped through while searching
+  public long getFingerSteps() {return fingerSteps;}
+
   // Returns the height of a node. If the node is null, returns 0
   public int getNodeHeight(Node node) {return node == null ? 0 : node.height;}
 